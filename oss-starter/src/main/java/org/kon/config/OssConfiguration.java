@@ -1,35 +1,179 @@
 package org.kon.config;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
+import lombok.extern.slf4j.Slf4j;
 import org.kon.oss.OssTemplate;
-import org.springframework.beans.factory.annotation.Value;
+import org.kon.oss.OssTemplateRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Oss配置
  *
+ *      oss.endpoint等配置注册为默认模板[default]，oss.clients.{name}.endpoint等配置注册为命名模板。
+ *      命名模板未配置的accessKeyId、accessKeySecret、isPrivate及连接池参数继承oss.*下的同名配置，
+ *      buckets与warmUp/warmUpTimeout不继承。
+ *
  * @author kon, created on 2022/2/25T16:41.
  * @version 1.0.0-SNAPSHOT
  */
+@Slf4j
 @Configuration
 public class OssConfiguration {
+    /**
+     * 配置前缀
+     */
+    private static final String PREFIX = "oss.";
+    /**
+     * 命名模板配置前缀
+     */
+    private static final String CLIENTS_PREFIX = "oss.clients.";
+    /**
+     * 命名模板识别属性
+     */
+    private static final String ENDPOINT_SUFFIX = ".endpoint";
+
+    @Bean
+    public OssTemplateRegistry ossTemplateRegistry(Environment environment) {
+        OssTemplateRegistry registry = new OssTemplateRegistry();
+        try {
+            if (environment.containsProperty(PREFIX + "endpoint")) {
+                register(registry, environment, OssTemplateRegistry.DEFAULT_NAME, PREFIX);
+            }
+            for (String name : clientNames(environment)) {
+                register(registry, environment, name, CLIENTS_PREFIX + name + ".");
+            }
+        } catch (RuntimeException e) {
+            // 配置错误时释放已创建的连接
+            registry.shutdown();
+            throw e;
+        }
+        return registry;
+    }
+
+    /**
+     * 默认模板，连接由注册表统一关闭
+     */
+    @Bean(destroyMethod = "")
+    public OssTemplate getOssTemplate(OssTemplateRegistry registry) {
+        OssTemplate ossTemplate = registry.getDefault();
+        if (ossTemplate == null) {
+            log.error("build oss template error, please check [oss.endpoint] or [oss.clients.{name}.endpoint]");
+            throw new IllegalStateException("no oss endpoint is configured");
+        }
+        return ossTemplate;
+    }
 
-    @Value("${oss.endpoint}")
-    String endpoint;
+    /**
+     * 注册模板，配置桶路由并预热连接
+     * @param registry      注册表
+     * @param environment   环境
+     * @param name          模板名称
+     * @param prefix        配置前缀
+     */
+    private void register(OssTemplateRegistry registry, Environment environment, String name, String prefix) {
+        OssTemplate ossTemplate = new OssTemplate(environment.getRequiredProperty(prefix + "endpoint"),
+                getProperty(environment, prefix, "accessKeyId", String.class),
+                getProperty(environment, prefix, "accessKeySecret", String.class))
+                .setPrivate(getProperty(environment, prefix, "isPrivate", Boolean.class, true))
+                .setClientConfiguration(clientConfiguration(environment, prefix))
+                .build();
+        registry.register(name, ossTemplate);
+        String[] buckets = environment.getProperty(prefix + "buckets", String[].class, new String[0]);
+        List<String> bucketNames = new ArrayList<>(buckets.length);
+        for (String bucket : buckets) {
+            registry.route(bucket.trim(), name);
+            bucketNames.add(bucket.trim());
+        }
+        // 预热配置只对当前模板生效，不继承oss.*；全部桶并发预热，共用一个超时时间
+        int warmUp = environment.getProperty(prefix + "warmUp", Integer.class, 0);
+        long warmUpTimeout = environment.getProperty(prefix + "warmUpTimeout", Long.class,
+                OssTemplate.DEFAULT_WARM_UP_TIMEOUT);
+        ossTemplate.warmUp(bucketNames, warmUp, warmUpTimeout);
+    }
 
-    @Value("${oss.accessKeyId}")
-    String accessKeyId;
+    /**
+     * 客户端配置
+     * @param environment   环境
+     * @param prefix        配置前缀
+     * @return  客户端配置
+     */
+    private ClientBuilderConfiguration clientConfiguration(Environment environment, String prefix) {
+        ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+        Integer maxConnections = getProperty(environment, prefix, "maxConnections", Integer.class);
+        if (maxConnections != null) {
+            configuration.setMaxConnections(maxConnections);
+        }
+        // 建立连接超时时间（毫秒）
+        Integer connectionTimeout = getProperty(environment, prefix, "connectionTimeout", Integer.class);
+        if (connectionTimeout != null) {
+            configuration.setConnectionTimeout(connectionTimeout);
+        }
+        // Socket读写超时时间（毫秒）
+        Integer socketTimeout = getProperty(environment, prefix, "socketTimeout", Integer.class);
+        if (socketTimeout != null) {
+            configuration.setSocketTimeout(socketTimeout);
+        }
+        // 从连接池获取连接的超时时间（毫秒）
+        Integer connectionRequestTimeout = getProperty(environment, prefix, "connectionRequestTimeout", Integer.class);
+        if (connectionRequestTimeout != null) {
+            configuration.setConnectionRequestTimeout(connectionRequestTimeout);
+        }
+        // 空闲连接超过该时间（毫秒）后关闭
+        Long idleConnectionTime = getProperty(environment, prefix, "idleConnectionTime", Long.class);
+        if (idleConnectionTime != null) {
+            configuration.setIdleConnectionTime(idleConnectionTime);
+        }
+        // 连接最大存活时间（毫秒），-1为不限制
+        Long connectionTtl = getProperty(environment, prefix, "connectionTTL", Long.class);
+        if (connectionTtl != null) {
+            configuration.setConnectionTTL(connectionTtl);
+        }
+        return configuration;
+    }
 
-    @Value("${oss.accessKeySecret}")
-    String accessKeySecret;
+    /**
+     * 命名模板名称
+     * @param environment   环境
+     * @return  名称集合
+     */
+    private Set<String> clientNames(Environment environment) {
+        Set<String> names = new LinkedHashSet<>();
+        if (!(environment instanceof ConfigurableEnvironment)) {
+            return names;
+        }
+        for (PropertySource<?> propertySource : ((ConfigurableEnvironment) environment).getPropertySources()) {
+            if (!(propertySource instanceof EnumerablePropertySource)) {
+                continue;
+            }
+            for (String propertyName : ((EnumerablePropertySource<?>) propertySource).getPropertyNames()) {
+                if (propertyName.startsWith(CLIENTS_PREFIX) && propertyName.endsWith(ENDPOINT_SUFFIX)) {
+                    String name = propertyName.substring(CLIENTS_PREFIX.length(), propertyName.length() - ENDPOINT_SUFFIX.length());
+                    if (!name.isEmpty() && name.indexOf('.') < 0) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return names;
+    }
 
-    @Value("${oss.isPrivate}")
-    boolean isPrivate;
+    private static <T> T getProperty(Environment environment, String prefix, String key, Class<T> type) {
+        T value = environment.getProperty(prefix + key, type);
+        return value != null ? value : environment.getProperty(PREFIX + key, type);
+    }
 
-    @Bean
-    public OssTemplate getOssTemplate() {
-        return new OssTemplate(this.endpoint, this.accessKeyId, this.accessKeySecret)
-                .setPrivate(isPrivate)
-                .build();
+    private static <T> T getProperty(Environment environment, String prefix, String key, Class<T> type, T defaultValue) {
+        T value = getProperty(environment, prefix, key, type);
+        return value != null ? value : defaultValue;
     }
 }
@@ -1,7 +1,11 @@
 package org.kon.oss;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.CRC64;
 import com.aliyun.oss.internal.OSSHeaders;
 import com.aliyun.oss.model.*;
 import lombok.extern.slf4j.Slf4j;
@@ -14,14 +18,28 @@ import java.io.*;
 import java.net.URL;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 /**
  * 阿里云Oss模板
  *
  *      文件默认都是私有的，上传返回的URL地址都是有时效性的。
  *      上传默认是没有检测文件是否存在的，存在的文件会进行覆盖。可自行判断
+ *      开启去重上传（setDedup）后，上传Byte数组和文件前先发送一次HEAD，存储类型与访问权限（记录在用户元数据中）一致时
+ *      才计算本地CRC64并与服务端比较，全部一致才跳过上传，任一检查失败都会正常上传。
  *
  *      官方定义：签名URL的默认过期时间为3600秒，最大值为32400秒 （8小时）。
  *
@@ -38,6 +56,22 @@ public class OssTemplate {
      * 默认私有
      */
     private static final boolean DEFAULT_PRIVATE = true;
+    /**
+     * 默认不去重
+     */
+    private static final boolean DEFAULT_DEDUP = false;
+    /**
+     * 记录访问权限的用户元数据（x-oss-meta-acl），HEAD请求即可获取
+     */
+    private static final String ACL_USER_METADATA = "acl";
+    /**
+     * 批量生成URL时并行签名的阈值
+     */
+    private static final int PARALLEL_SIGN_THRESHOLD = 256;
+    /**
+     * 默认预热超时时间（毫秒）
+     */
+    public static final long DEFAULT_WARM_UP_TIMEOUT = 10000;
     /**
      * 过期时间（秒）
      */
@@ -46,6 +80,10 @@ public class OssTemplate {
      * 是否私有
      */
     private boolean isPrivate = DEFAULT_PRIVATE;
+    /**
+     * 是否去重上传
+     */
+    private boolean isDedup = DEFAULT_DEDUP;
     /**
      * yourEndpoint填写Bucket所在地域对应的Endpoint。以华东1（杭州）为例，Endpoint填写为https://oss-cn-hangzhou.aliyuncs.com
      */
@@ -58,6 +96,19 @@ public class OssTemplate {
      * 阿里云账号AccessKey密钥
      */
     private final String accessKeySecret;
+    /**
+     * 公共读URL前缀（协议），例如https://
+     */
+    private final String urlScheme;
+    /**
+     * 公共读URL主机，例如oss-cn-hangzhou.aliyuncs.com
+     */
+    private final String urlHost;
+
+    /**
+     * 客户端配置（连接池大小、超时时间等），为null时使用SDK默认配置
+     */
+    private ClientBuilderConfiguration clientConfiguration;
 
     /**
      * Oss链接
@@ -68,6 +119,11 @@ public class OssTemplate {
         this.endpoint = endpoint;
         this.accessKeyId = accessKeyId;
         this.accessKeySecret = accessKeySecret;
+        // 预先拆分endpoint，避免每次生成公共读URL时重复拆分
+        int index = endpoint.indexOf("//");
+        boolean isValid = index >= 0 && index + 2 < endpoint.length();
+        this.urlScheme = isValid ? endpoint.substring(0, index + 2) : null;
+        this.urlHost = isValid ? endpoint.substring(index + 2) : null;
     }
 
     public OssTemplate setExpirationSecond(long expirationSecond) {
@@ -80,10 +136,21 @@ public class OssTemplate {
         return this;
     }
 
+    public OssTemplate setDedup(boolean dedup) {
+        isDedup = dedup;
+        return this;
+    }
+
+    public OssTemplate setClientConfiguration(ClientBuilderConfiguration clientConfiguration) {
+        this.clientConfiguration = clientConfiguration;
+        return this;
+    }
+
     public OssTemplate build() {
         if (StringUtils.hasLength(this.endpoint) && StringUtils.hasLength(this.accessKeyId)
                 && StringUtils.hasLength(this.accessKeySecret)) {
-            this.ossClient = new OSSClientBuilder().build(this.endpoint, this.accessKeyId, this.accessKeySecret);
+            this.ossClient = new OSSClientBuilder().build(this.endpoint, this.accessKeyId, this.accessKeySecret,
+                    this.clientConfiguration);
             return this;
         } else {
             log.error("build oss template error, please check [endpoint]、[accessKeyId] or [accessKeySecret]");
@@ -91,6 +158,18 @@ public class OssTemplate {
         }
     }
 
+    public boolean isPrivate() {
+        return isPrivate;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public ClientBuilderConfiguration getClientConfiguration() {
+        return clientConfiguration;
+    }
+
     /**
      * 检查是否连接
      * @return  T/F
@@ -111,6 +190,81 @@ public class OssTemplate {
         return this.ossClient;
     }
 
+    /**
+     * 预热连接
+     * @param bucketName    桶名称
+     * @param connections   预热连接数
+     */
+    public void warmUp(@NonNull String bucketName, int connections) {
+        warmUp(Collections.singletonList(bucketName), connections, DEFAULT_WARM_UP_TIMEOUT);
+    }
+
+    /**
+     * 预热连接
+     * @param bucketName    桶名称
+     * @param connections   预热连接数
+     * @param timeout       超时时间（毫秒）
+     */
+    public void warmUp(@NonNull String bucketName, int connections, long timeout) {
+        warmUp(Collections.singletonList(bucketName), connections, timeout);
+    }
+
+    /**
+     * 预热连接
+     *
+     *      对全部桶并发发起轻量请求，提前完成DNS解析、TLS握手并填充连接池。
+     *      总连接数不超过客户端最大连接数，全部桶共用一个超时时间，超时后放弃未完成的请求，不阻塞调用方。
+     * @param bucketNames   桶名称集合
+     * @param connections   每个桶的预热连接数
+     * @param timeout       超时时间（毫秒）
+     */
+    public void warmUp(@NonNull Collection<String> bucketNames, int connections, long timeout) {
+        int maxConnections = (this.clientConfiguration != null ? this.clientConfiguration
+                : new ClientBuilderConfiguration()).getMaxConnections();
+        int count = (int) Math.min((long) connections * bucketNames.size(), maxConnections);
+        if (count <= 0) {
+            return;
+        }
+        OSS client = getOssClient();
+        String[] buckets = bucketNames.toArray(new String[0]);
+        ExecutorService executor = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "oss-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String bucketName = buckets[i % buckets.length];
+                tasks.add(() -> client.doesBucketExist(bucketName));
+            }
+            // 请求失败不影响预热，连接已建立即可
+            List<Future<Boolean>> futures = executor.invokeAll(tasks, timeout, TimeUnit.MILLISECONDS);
+            long cancelled = futures.stream().filter(Future::isCancelled).count();
+            if (cancelled > 0) {
+                log.warn("warm up [{}] for buckets {} timeout, {} of {} requests unfinished", this.endpoint, bucketNames,
+                        cancelled, count);
+            } else {
+                log.info("warm up {} connections to [{}] for buckets {}", count, this.endpoint, bucketNames);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("warm up oss connections interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 关闭Oss连接，释放连接池
+     */
+    public synchronized void shutdown() {
+        if (this.ossClient != null) {
+            this.ossClient.shutdown();
+            this.ossClient = null;
+        }
+    }
+
     /**
      * 创建桶
      * @param bucketName    桶名称
@@ -260,6 +414,9 @@ public class OssTemplate {
      */
     public String pushBytes(@NonNull String bucketName, @NonNull String objectName, @NonNull byte[] content, boolean isListener) {
         try {
+            if (this.isDedup && isSameContent(bucketName, objectName, () -> crc64(content))) {
+                return generateUrl(bucketName, objectName, false);
+            }
             PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, new ByteArrayInputStream(content));
             if (isListener) {
                 putObjectRequest.withProgressListener(new PushObjectProgressListener());
@@ -271,7 +428,7 @@ public class OssTemplate {
             // 生成URL地址
             return generateUrl(bucketName, objectName, false);
         } catch (Exception e) {
-            log.error("push bytes error");
+            log.error("push bytes error", e);
         }
         return null;
     }
@@ -335,6 +492,9 @@ public class OssTemplate {
      */
     public String pushFile(@NonNull String bucketName, @NonNull String objectName, @NonNull String filePath, boolean isListener) {
         try {
+            if (this.isDedup && isSameContent(bucketName, objectName, () -> crc64(new File(filePath)))) {
+                return generateUrl(bucketName, objectName, false);
+            }
             PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, new FileInputStream(filePath));
             if (isListener) {
                 putObjectRequest.withProgressListener(new PushObjectProgressListener());
@@ -372,6 +532,9 @@ public class OssTemplate {
      */
     public String pushFile(@NonNull String bucketName, @NonNull String objectName, @NonNull File file, boolean isListener) {
         try {
+            if (this.isDedup && isSameContent(bucketName, objectName, () -> crc64(file))) {
+                return generateUrl(bucketName, objectName, false);
+            }
             PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, file);
             if (isListener) {
                 putObjectRequest.withProgressListener(new PushObjectProgressListener());
@@ -501,14 +664,125 @@ public class OssTemplate {
         }
         String url;
         if (isPrivate) {
-            Date expiration = new Date(Instant.now().toEpochMilli() + this.expirationSecond * 1000);
-            url = getOssClient().generatePresignedUrl(bucketName, objectName, expiration).toString();
+            url = getOssClient().generatePresignedUrl(bucketName, objectName, expiration()).toString();
         } else {
             url = url(bucketName, objectName);
         }
         return url;
     }
 
+    /**
+     * 批量生成URL地址
+     *
+     *      过期时间与endpoint前缀只计算一次，数量较多时并行签名。不检测Object是否存在。
+     *      为null的路径会被忽略；重复的路径只签名一次，结果中只出现一次，因此结果数量可能少于传入数量。
+     * @param bucketName    桶名称
+     * @param objectNames   Object完整路径集合，例如exampledir/exampleobject.txt。Object完整路径中不能包含Bucket名称。
+     * @return Object完整路径 -> URL地址，按首次出现的顺序排列
+     */
+    public Map<String, String> generateUrls(@NonNull String bucketName, @NonNull Collection<String> objectNames) {
+        try {
+            Set<String> uniqueNames = new LinkedHashSet<>(objectNames);
+            if (uniqueNames.remove(null)) {
+                log.warn("generate urls ignore null object names");
+            }
+            String[] names = uniqueNames.toArray(new String[0]);
+            String[] urls = new String[names.length];
+            if (isPrivate) {
+                OSS client = getOssClient();
+                Date expiration = expiration();
+                IntStream range = IntStream.range(0, names.length);
+                if (names.length >= PARALLEL_SIGN_THRESHOLD) {
+                    range = range.parallel();
+                }
+                range.forEach(i -> urls[i] = client.generatePresignedUrl(bucketName, names[i], expiration).toString());
+            } else {
+                for (int i = 0; i < names.length; i++) {
+                    urls[i] = url(bucketName, names[i]);
+                }
+            }
+            Map<String, String> urlMap = new LinkedHashMap<>((int) (names.length / 0.75f) + 1);
+            for (int i = 0; i < names.length; i++) {
+                urlMap.put(names[i], urls[i]);
+            }
+            return urlMap;
+        } catch (Exception e) {
+            log.error("generate urls error", e);
+        }
+        return null;
+    }
+
+    /**
+     * 签名URL过期时间
+     * @return 过期时间
+     */
+    private Date expiration() {
+        return new Date(Instant.now().toEpochMilli() + this.expirationSecond * 1000);
+    }
+
+    /**
+     * 远端Object是否与本次上传一致
+     *
+     *      每次都通过一次HEAD请求确认，不使用本地缓存，避免Object被其他方删除或覆盖后误跳过。
+     *      远端存在、存储类型与访问权限一致时才计算本地CRC64，全部一致才返回true，请求异常时返回false继续上传。
+     *      未记录访问权限用户元数据的Object（例如由其他方式上传）总是重新上传。
+     * @param bucketName    桶名称
+     * @param objectName    Object完整路径，例如exampledir/exampleobject.txt。Object完整路径中不能包含Bucket名称。
+     * @param crc           本地CRC64计算
+     * @return T/F
+     */
+    boolean isSameContent(String bucketName, String objectName, Callable<Long> crc) {
+        try {
+            ObjectMetadata metadata = getOssClient().getObjectMetadata(bucketName, objectName);
+            Long serverCrc = metadata.getServerCRC();
+            if (serverCrc == null || metadata.getObjectStorageClass() != StorageClass.Standard
+                    || !accessControlList().toString().equals(metadata.getUserMetadata().get(ACL_USER_METADATA))) {
+                return false;
+            }
+            if (serverCrc.longValue() != crc.call()) {
+                return false;
+            }
+            log.debug("object [{}] is unchanged, skip push", objectName);
+            return true;
+        } catch (OSSException e) {
+            if (!OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                log.warn("check object [{}] error, push it anyway", objectName, e);
+            }
+        } catch (Exception e) {
+            log.warn("check object [{}] error, push it anyway", objectName, e);
+        }
+        return false;
+    }
+
+    /**
+     * 计算CRC64
+     * @param content   byte数组
+     * @return CRC64
+     */
+    private static long crc64(byte[] content) {
+        CRC64 crc64 = new CRC64();
+        crc64.update(content, 0, content.length);
+        return crc64.getValue();
+    }
+
+    /**
+     * 计算CRC64
+     * @param file  文件
+     * @return CRC64
+     * @throws IOException IO异常
+     */
+    private static long crc64(File file) throws IOException {
+        CRC64 crc64 = new CRC64();
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                crc64.update(buffer, 0, len);
+            }
+        }
+        return crc64.getValue();
+    }
+
     /**
      * 获取私有meta
      * @return ObjectMetadata
@@ -517,15 +791,22 @@ public class OssTemplate {
         // 如果需要上传时设置存储类型和访问权限，请参考以下示例代码。
         ObjectMetadata metadata = new ObjectMetadata();
         metadata.setHeader(OSSHeaders.OSS_STORAGE_CLASS, StorageClass.Standard);
-        // 默认为私有
-        CannedAccessControlList accessControlList = CannedAccessControlList.Private;
-        if (!isPrivate) {
-            accessControlList = CannedAccessControlList.PublicRead;
-        }
+        CannedAccessControlList accessControlList = accessControlList();
         metadata.setObjectAcl(accessControlList);
+        // 访问权限同时记录在用户元数据中，去重上传时通过HEAD比较
+        metadata.addUserMetadata(ACL_USER_METADATA, accessControlList.toString());
         return metadata;
     }
 
+    /**
+     * 访问权限
+     * @return 私有或公共读
+     */
+    private CannedAccessControlList accessControlList() {
+        // 默认为私有
+        return isPrivate ? CannedAccessControlList.Private : CannedAccessControlList.PublicRead;
+    }
+
     /**
      * 根据规则生成
      * @param bucketName    桶名称
@@ -533,11 +814,13 @@ public class OssTemplate {
      * @return  url地址
      */
     private String url(String bucketName, String objectName) {
-        String[] split = this.endpoint.split("//");
-        if (split.length < 2) {
+        if (this.urlHost == null) {
             throw new RuntimeException("Oss endpoint [" + this.endpoint + "] is error!!!");
         }
-        return split[0] + "//" + bucketName + "." + split[1] + "/" + objectName;
+        return new StringBuilder(this.urlScheme.length() + bucketName.length() + this.urlHost.length() + objectName.length() + 2)
+                .append(this.urlScheme).append(bucketName).append('.')
+                .append(this.urlHost).append('/').append(objectName)
+                .toString();
     }
 
 
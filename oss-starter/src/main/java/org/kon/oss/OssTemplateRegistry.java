@@ -0,0 +1,122 @@
+package org.kon.oss;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 阿里云Oss模板注册表
+ *
+ *      按名称管理多个OssTemplate（不同地域/Endpoint/连接池配置），并按桶名称路由到对应的模板。
+ *      未配置路由的桶使用默认模板。
+ *
+ * @author kon, created on 2026/10/19T14:05.
+ * @version 1.0.0-SNAPSHOT
+ */
+@Slf4j
+public class OssTemplateRegistry {
+    /**
+     * 默认模板名称
+     */
+    public static final String DEFAULT_NAME = "default";
+    /**
+     * 模板，key: 名称
+     */
+    private final Map<String, OssTemplate> templates = new ConcurrentHashMap<>();
+    /**
+     * 桶路由，key: 桶名称，value: 模板名称
+     */
+    private final Map<String, String> bucketRoutes = new ConcurrentHashMap<>();
+    /**
+     * 默认模板名称，未注册[default]时为第一个注册的模板
+     */
+    private volatile String defaultName;
+
+    /**
+     * 注册模板
+     * @param name      名称
+     * @param template  已build的模板
+     * @return  注册表
+     */
+    public OssTemplateRegistry register(@NonNull String name, @NonNull OssTemplate template) {
+        this.templates.put(name, template);
+        if (this.defaultName == null || DEFAULT_NAME.equals(name)) {
+            this.defaultName = name;
+        }
+        return this;
+    }
+
+    /**
+     * 配置桶路由，同一个桶只能路由到一个模板
+     * @param bucketName    桶名称
+     * @param name          模板名称
+     * @return  注册表
+     */
+    public OssTemplateRegistry route(@NonNull String bucketName, @NonNull String name) {
+        if (!this.templates.containsKey(name)) {
+            log.error("oss template [{}] is not registered", name);
+            throw new IllegalArgumentException("oss template [" + name + "] is not registered");
+        }
+        String routed = this.bucketRoutes.putIfAbsent(bucketName, name);
+        if (routed != null && !routed.equals(name)) {
+            log.error("bucket [{}] is already routed to oss template [{}]", bucketName, routed);
+            throw new IllegalArgumentException("bucket [" + bucketName + "] is already routed to oss template ["
+                    + routed + "]");
+        }
+        return this;
+    }
+
+    /**
+     * 按名称获取模板
+     * @param name  名称
+     * @return  模板，不存在返回null
+     */
+    public OssTemplate get(@NonNull String name) {
+        return this.templates.get(name);
+    }
+
+    /**
+     * 默认模板
+     * @return  模板，未注册任何模板返回null
+     */
+    public OssTemplate getDefault() {
+        return this.defaultName == null ? null : this.templates.get(this.defaultName);
+    }
+
+    /**
+     * 按桶名称路由模板
+     * @param bucketName    桶名称
+     * @return  模板，未配置路由时返回默认模板
+     */
+    public OssTemplate forBucket(@NonNull String bucketName) {
+        String name = this.bucketRoutes.get(bucketName);
+        return name == null ? getDefault() : this.templates.get(name);
+    }
+
+    /**
+     * 已注册的模板名称
+     * @return  名称集合
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(this.templates.keySet());
+    }
+
+    /**
+     * 关闭全部模板的Oss连接
+     *
+     *      作为Spring Bean时由容器在销毁时调用（推断的destroy方法）。
+     */
+    public void shutdown() {
+        for (Map.Entry<String, OssTemplate> entry : this.templates.entrySet()) {
+            try {
+                entry.getValue().shutdown();
+            } catch (Exception e) {
+                log.warn("shutdown oss template [{}] error", entry.getKey(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package org.kon.oss.pack;
+
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.PutObjectRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.kon.oss.OssTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 阿里云Oss小对象打包模板
+ *
+ *      将大量小对象合并写入一个打包Object，并在旁边写入索引Object（Key -> 偏移量/长度），
+ *      一次PUT即可写入整批数据。读取时使用缓存的索引，通过Range GET只读取单个条目。
+ *
+ *      打包Object：{packName}.{generation}.pack
+ *      索引Object：{packName}.idx
+ *
+ *      删除只标记索引，已删除字节占比达到压缩阈值后重写打包Object（代数+1）并删除旧的打包Object。
+ *      同一个打包的上传、删除与压缩需由单一写入方执行；本实例内这些操作按打包加锁串行执行，不同打包互不阻塞。
+ *
+ *      pushPack一次写入（或替换）整个打包，不支持向已有打包追加条目。逐个写入的小对象请使用OssPackWriter缓冲后批量写入。
+ *
+ *      索引缓存按LRU淘汰，并在过期后重新从OSS加载，以感知其他进程替换的打包。
+ *
+ * @author kon, created on 2026/10/19T10:20.
+ * @version 1.0.0-SNAPSHOT
+ */
+@Slf4j
+public class OssPackTemplate {
+    /**
+     * 索引后缀
+     */
+    private static final String INDEX_SUFFIX = ".idx";
+    /**
+     * 打包后缀
+     */
+    private static final String PACK_SUFFIX = ".pack";
+    /**
+     * 默认压缩阈值
+     */
+    private static final double DEFAULT_COMPACT_RATIO = 0.5;
+    /**
+     * 默认索引缓存数量上限
+     */
+    private static final int DEFAULT_MAX_CACHED_INDEXES = 1024;
+    /**
+     * 默认索引缓存过期时间（秒）
+     */
+    private static final long DEFAULT_INDEX_EXPIRATION_SECOND = 60;
+    /**
+     * Range GET严格模式请求头，范围非法时返回错误而不是整个Object
+     */
+    private static final String RANGE_BEHAVIOR_HEADER = "x-oss-range-behavior";
+    /**
+     * 压缩阈值：已删除字节占比
+     */
+    private double compactRatio = DEFAULT_COMPACT_RATIO;
+    /**
+     * 索引缓存数量上限
+     */
+    private volatile int maxCachedIndexes = DEFAULT_MAX_CACHED_INDEXES;
+    /**
+     * 索引缓存过期时间（秒）
+     */
+    private long indexExpirationSecond = DEFAULT_INDEX_EXPIRATION_SECOND;
+    /**
+     * Oss模板
+     */
+    private final OssTemplate ossTemplate;
+    /**
+     * 索引缓存（LRU），key: bucketName/packName
+     */
+    private final Map<String, CachedIndex> indexCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedIndex> eldest) {
+                    return size() > maxCachedIndexes;
+                }
+            });
+    /**
+     * 打包锁，key: bucketName/packName，无持有者时移除
+     */
+    private final Map<String, PackLock> locks = new ConcurrentHashMap<>();
+
+    public OssPackTemplate(@NonNull OssTemplate ossTemplate) {
+        this.ossTemplate = ossTemplate;
+    }
+
+    public OssPackTemplate setCompactRatio(double compactRatio) {
+        this.compactRatio = compactRatio;
+        return this;
+    }
+
+    public OssPackTemplate setMaxCachedIndexes(int maxCachedIndexes) {
+        this.maxCachedIndexes = maxCachedIndexes;
+        return this;
+    }
+
+    public OssPackTemplate setIndexExpirationSecond(long indexExpirationSecond) {
+        this.indexExpirationSecond = indexExpirationSecond;
+        return this;
+    }
+
+    /**
+     * 上传打包
+     *
+     *      已存在的同名打包会被整体替换
+     * @param bucketName    桶名称
+     * @param packName      打包名称，例如exampledir/pack-0001。不能包含Bucket名称。
+     * @param contents      条目Key -> 内容，按迭代顺序写入
+     * @return T/F
+     */
+    public boolean pushPack(@NonNull String bucketName, @NonNull String packName, @NonNull Map<String, byte[]> contents) {
+        String lockKey = cacheKey(bucketName, packName);
+        PackLock lock = lock(lockKey);
+        try {
+            PackIndex oldIndex = loadIndex(bucketName, packName);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(estimateSize(contents));
+            PackIndex index = PackIndex.pack(nextGeneration(oldIndex), contents, outputStream);
+            writePack(bucketName, packName, index, outputStream.toByteArray(), oldIndex);
+            return true;
+        } catch (Exception e) {
+            log.error("push pack error", e);
+        } finally {
+            unlock(lockKey, lock);
+        }
+        return false;
+    }
+
+    /**
+     * 读取条目
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @param key           条目Key
+     * @return  条目内容，不存在返回null
+     */
+    public byte[] getEntry(@NonNull String bucketName, @NonNull String packName, @NonNull String key) {
+        try {
+            return readEntry(bucketName, packName, key);
+        } catch (OSSException e) {
+            if (!OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                log.error("get pack entry error", e);
+                return null;
+            }
+            // 打包已被压缩，刷新索引后重试一次
+            evictIndex(bucketName, packName);
+            try {
+                return readEntry(bucketName, packName, key);
+            } catch (Exception ex) {
+                log.error("get pack entry error", ex);
+            }
+        } catch (Exception e) {
+            log.error("get pack entry error", e);
+        }
+        return null;
+    }
+
+    /**
+     * 删除条目
+     *
+     *      只标记索引，已删除字节占比达到压缩阈值时自动压缩
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @param key           条目Key
+     * @return T/F
+     */
+    public boolean deleteEntry(@NonNull String bucketName, @NonNull String packName, @NonNull String key) {
+        String lockKey = cacheKey(bucketName, packName);
+        PackLock lock = lock(lockKey);
+        try {
+            PackIndex index = loadIndex(bucketName, packName);
+            if (index == null || !index.markDeleted(key)) {
+                return false;
+            }
+            if (index.deletedRatio() >= this.compactRatio) {
+                return compact(bucketName, packName, index);
+            }
+            putObject(bucketName, indexName(packName), index.toBytes());
+            return true;
+        } catch (Exception e) {
+            log.error("delete pack entry error", e);
+            // 本地索引已被修改，丢弃缓存
+            evictIndex(bucketName, packName);
+        } finally {
+            unlock(lockKey, lock);
+        }
+        return false;
+    }
+
+    /**
+     * 压缩打包
+     *
+     *      只保留有效条目，写入新一代打包Object后删除旧的打包Object
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @return T/F
+     */
+    public boolean compact(@NonNull String bucketName, @NonNull String packName) {
+        String lockKey = cacheKey(bucketName, packName);
+        PackLock lock = lock(lockKey);
+        try {
+            PackIndex oldIndex = loadIndex(bucketName, packName);
+            return oldIndex != null && compact(bucketName, packName, oldIndex);
+        } catch (Exception e) {
+            log.error("compact pack error", e);
+            evictIndex(bucketName, packName);
+        } finally {
+            unlock(lockKey, lock);
+        }
+        return false;
+    }
+
+    /**
+     * 按指定索引压缩打包，调用方需持有打包锁
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @param oldIndex      当前索引
+     * @return T/F
+     */
+    private boolean compact(String bucketName, String packName, PackIndex oldIndex) {
+        try {
+            if (oldIndex.liveCount() == 0) {
+                deletePack(bucketName, packName);
+                return true;
+            }
+            byte[] oldData = getObject(new GetObjectRequest(bucketName, dataName(packName, oldIndex.getGeneration())));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(oldData.length);
+            PackIndex index = oldIndex.compact(nextGeneration(oldIndex), oldData, outputStream);
+            writePack(bucketName, packName, index, outputStream.toByteArray(), oldIndex);
+            log.info("compact pack [{}] from {} bytes to {} bytes", packName, oldData.length, outputStream.size());
+            return true;
+        } catch (Exception e) {
+            log.error("compact pack error", e);
+            evictIndex(bucketName, packName);
+        }
+        return false;
+    }
+
+    /**
+     * 删除打包
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     */
+    public void deletePack(@NonNull String bucketName, @NonNull String packName) {
+        String lockKey = cacheKey(bucketName, packName);
+        PackLock lock = lock(lockKey);
+        try {
+            PackIndex index = loadIndex(bucketName, packName);
+            if (index != null) {
+                this.ossTemplate.getOssClient().deleteObject(bucketName, indexName(packName));
+                this.ossTemplate.getOssClient().deleteObject(bucketName, dataName(packName, index.getGeneration()));
+            }
+        } catch (Exception e) {
+            log.error("delete pack error", e);
+        } finally {
+            evictIndex(bucketName, packName);
+            unlock(lockKey, lock);
+        }
+    }
+
+    /**
+     * 清除索引缓存
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     */
+    public void evictIndex(@NonNull String bucketName, @NonNull String packName) {
+        this.indexCache.remove(cacheKey(bucketName, packName));
+    }
+
+    /**
+     * 读取条目（Range GET）
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @param key           条目Key
+     * @return  条目内容
+     * @throws Exception    异常
+     */
+    private byte[] readEntry(String bucketName, String packName, String key) throws Exception {
+        PackIndex index = loadIndex(bucketName, packName);
+        PackEntry entry = index == null ? null : index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getLength() == 0) {
+            return new byte[0];
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, dataName(packName, index.getGeneration()));
+        getObjectRequest.setRange(entry.getOffset(), entry.getOffset() + entry.getLength() - 1);
+        getObjectRequest.addHeader(RANGE_BEHAVIOR_HEADER, "standard");
+        byte[] content = getObject(getObjectRequest);
+        // 范围非法时OSS可能忽略Range返回整个Object，索引损坏或过期时不能把整个打包当作条目返回
+        if (content.length != entry.getLength()) {
+            throw new IOException("pack entry [" + key + "] expect " + entry.getLength() + " bytes, but got " + content.length);
+        }
+        return content;
+    }
+
+    /**
+     * 写入打包Object与索引Object
+     *
+     *      先写打包Object再写索引Object，读取方始终看到完整的打包。
+     *      索引写入失败时删除新的打包Object；删除旧一代打包Object失败不影响结果。
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @param index         新索引
+     * @param data          打包数据
+     * @param oldIndex      旧索引，可为null
+     * @throws Exception    异常
+     */
+    private void writePack(String bucketName, String packName, PackIndex index, byte[] data, PackIndex oldIndex) throws Exception {
+        String dataName = dataName(packName, index.getGeneration());
+        putObject(bucketName, dataName, data);
+        try {
+            putObject(bucketName, indexName(packName), index.toBytes());
+        } catch (Exception e) {
+            try {
+                this.ossTemplate.getOssClient().deleteObject(bucketName, dataName);
+            } catch (Exception ex) {
+                log.warn("delete uncommitted pack [{}] error", dataName, ex);
+            }
+            throw e;
+        }
+        this.indexCache.put(cacheKey(bucketName, packName), new CachedIndex(index));
+        if (oldIndex != null && oldIndex.getGeneration() != index.getGeneration()) {
+            String oldDataName = dataName(packName, oldIndex.getGeneration());
+            try {
+                this.ossTemplate.getOssClient().deleteObject(bucketName, oldDataName);
+            } catch (Exception e) {
+                log.warn("delete old pack [{}] error", oldDataName, e);
+            }
+        }
+    }
+
+    /**
+     * 加载索引，优先使用未过期的缓存
+     * @param bucketName    桶名称
+     * @param packName      打包名称
+     * @return  索引，不存在返回null
+     * @throws Exception    异常
+     */
+    private PackIndex loadIndex(String bucketName, String packName) throws Exception {
+        String cacheKey = cacheKey(bucketName, packName);
+        CachedIndex cached = this.indexCache.get(cacheKey);
+        if (cached != null && Instant.now().toEpochMilli() - cached.loadedAt < this.indexExpirationSecond * 1000) {
+            return cached.index;
+        }
+        PackIndex index;
+        try {
+            index = PackIndex.fromBytes(getObject(new GetObjectRequest(bucketName, indexName(packName))));
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                this.indexCache.remove(cacheKey);
+                return null;
+            }
+            throw e;
+        }
+        this.indexCache.put(cacheKey, new CachedIndex(index));
+        return index;
+    }
+
+    /**
+     * 上传Object
+     * @param bucketName    桶名称
+     * @param objectName    Object完整路径
+     * @param content       byte数组
+     */
+    private void putObject(String bucketName, String objectName, byte[] content) {
+        PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, new ByteArrayInputStream(content));
+        putObjectRequest.setMetadata(this.ossTemplate.getMetadata());
+        this.ossTemplate.getOssClient().putObject(putObjectRequest);
+    }
+
+    /**
+     * 下载Object
+     * @param getObjectRequest  下载请求
+     * @return  byte数组
+     * @throws Exception    异常
+     */
+    private byte[] getObject(GetObjectRequest getObjectRequest) throws Exception {
+        // ossObject对象使用完毕后必须关闭，否则会造成连接泄漏
+        try (OSSObject ossObject = this.ossTemplate.getOssClient().getObject(getObjectRequest)) {
+            return StreamUtils.copyToByteArray(ossObject.getObjectContent());
+        }
+    }
+
+    private static long nextGeneration(PackIndex oldIndex) {
+        long now = Instant.now().toEpochMilli();
+        return oldIndex == null ? now : Math.max(now, oldIndex.getGeneration() + 1);
+    }
+
+    private static int estimateSize(Map<String, byte[]> contents) {
+        long size = 0;
+        for (byte[] content : contents.values()) {
+            size += content.length;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    private static String indexName(String packName) {
+        return packName + INDEX_SUFFIX;
+    }
+
+    private static String dataName(String packName, long generation) {
+        return packName + "." + generation + PACK_SUFFIX;
+    }
+
+    private static String cacheKey(String bucketName, String packName) {
+        return bucketName + "/" + packName;
+    }
+
+    /**
+     * 获取打包锁
+     * @param lockKey   bucketName/packName
+     * @return  已加锁的打包锁
+     */
+    private PackLock lock(String lockKey) {
+        PackLock lock = this.locks.compute(lockKey, (key, value) -> {
+            PackLock packLock = value == null ? new PackLock() : value;
+            packLock.holders++;
+            return packLock;
+        });
+        lock.lock.lock();
+        return lock;
+    }
+
+    /**
+     * 释放打包锁，无持有者时移除
+     * @param lockKey   bucketName/packName
+     * @param lock      打包锁
+     */
+    private void unlock(String lockKey, PackLock lock) {
+        lock.lock.unlock();
+        this.locks.computeIfPresent(lockKey, (key, value) -> --value.holders == 0 ? null : value);
+    }
+
+    /**
+     * 打包锁
+     */
+    private static final class PackLock {
+        /**
+         * 可重入锁
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * 持有及等待的线程数，只在ConcurrentHashMap.compute中修改
+         */
+        private int holders;
+    }
+
+    /**
+     * 缓存的索引
+     */
+    private static final class CachedIndex {
+        /**
+         * 索引
+         */
+        private final PackIndex index;
+        /**
+         * 加载时间（毫秒）
+         */
+        private final long loadedAt;
+
+        private CachedIndex(PackIndex index) {
+            this.index = index;
+            this.loadedAt = Instant.now().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.kon.oss.pack;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 打包写入缓冲
+ *
+ *      逐个写入的小对象先缓冲在内存中，条目数或字节数达到上限时通过OssPackTemplate.pushPack一次写入一个打包。
+ *      add返回条目所在的打包名称，flush之后才能通过OssPackTemplate.getEntry读取。
+ *      写入失败时缓冲保留，下一次add或flush时重试。
+ *
+ * @author kon, created on 2026/10/20T10:05.
+ * @version 1.0.0-SNAPSHOT
+ */
+@Slf4j
+public class OssPackWriter implements Closeable {
+    /**
+     * 默认打包字节数上限
+     */
+    private static final long DEFAULT_MAX_PACK_BYTES = 8 * 1024 * 1024;
+    /**
+     * 默认打包条目数上限
+     */
+    private static final int DEFAULT_MAX_PACK_ENTRIES = 10000;
+    /**
+     * 打包字节数上限
+     */
+    private long maxPackBytes = DEFAULT_MAX_PACK_BYTES;
+    /**
+     * 打包条目数上限
+     */
+    private int maxPackEntries = DEFAULT_MAX_PACK_ENTRIES;
+    /**
+     * 打包模板
+     */
+    private final OssPackTemplate packTemplate;
+    /**
+     * 桶名称
+     */
+    private final String bucketName;
+    /**
+     * 打包名称前缀，例如exampledir/pack
+     */
+    private final String packPrefix;
+    /**
+     * 打包序号
+     */
+    private long sequence;
+    /**
+     * 当前缓冲的打包名称
+     */
+    private String packName;
+    /**
+     * 缓冲条目
+     */
+    private Map<String, byte[]> buffer = new LinkedHashMap<>();
+    /**
+     * 缓冲字节数
+     */
+    private long bufferBytes;
+
+    public OssPackWriter(@NonNull OssPackTemplate packTemplate, @NonNull String bucketName, @NonNull String packPrefix) {
+        this.packTemplate = packTemplate;
+        this.bucketName = bucketName;
+        this.packPrefix = packPrefix;
+    }
+
+    public OssPackWriter setMaxPackBytes(long maxPackBytes) {
+        this.maxPackBytes = maxPackBytes;
+        return this;
+    }
+
+    public OssPackWriter setMaxPackEntries(int maxPackEntries) {
+        this.maxPackEntries = maxPackEntries;
+        return this;
+    }
+
+    /**
+     * 添加条目
+     * @param key       条目Key
+     * @param content   byte数组
+     * @return  条目所在的打包名称
+     */
+    public synchronized String add(@NonNull String key, @NonNull byte[] content) {
+        if (this.packName == null) {
+            this.packName = this.packPrefix + "-" + Instant.now().toEpochMilli() + "-" + this.sequence++;
+        }
+        byte[] replaced = this.buffer.put(key, content);
+        this.bufferBytes += content.length - (replaced == null ? 0 : replaced.length);
+        String target = this.packName;
+        if (this.buffer.size() >= this.maxPackEntries || this.bufferBytes >= this.maxPackBytes) {
+            flush();
+        }
+        return target;
+    }
+
+    /**
+     * 写入缓冲的条目
+     * @return T/F
+     */
+    public synchronized boolean flush() {
+        if (this.buffer.isEmpty()) {
+            return true;
+        }
+        if (!this.packTemplate.pushPack(this.bucketName, this.packName, this.buffer)) {
+            log.warn("flush pack [{}] error, {} entries are kept for retry", this.packName, this.buffer.size());
+            return false;
+        }
+        this.buffer = new LinkedHashMap<>();
+        this.bufferBytes = 0;
+        this.packName = null;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!flush()) {
+            log.error("close pack writer error, {} entries are not written", this.buffer.size());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.kon.oss.pack;
+
+/**
+ * 打包条目
+ *
+ *      记录小对象在打包Object中的偏移量与长度
+ *
+ * @author kon, created on 2026/10/19T10:12.
+ * @version 1.0.0-SNAPSHOT
+ */
+public class PackEntry {
+    /**
+     * 条目Key
+     */
+    private final String key;
+    /**
+     * 打包Object中的偏移量
+     */
+    private final long offset;
+    /**
+     * 字节长度
+     */
+    private final int length;
+    /**
+     * 是否已删除
+     */
+    private volatile boolean deleted;
+
+    public PackEntry(String key, long offset, int length, boolean deleted) {
+        this.key = key;
+        this.offset = offset;
+        this.length = length;
+        this.deleted = deleted;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    void markDeleted() {
+        this.deleted = true;
+    }
+}
@@ -0,0 +1,212 @@
+package org.kon.oss.pack;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * 打包索引
+ *
+ *      索引与打包Object一同写入OSS，格式：
+ *      魔数(int) + 版本(short) + 代数(long) + 条目数(int) + N * [Key(UTF) + 偏移量(long) + 长度(int) + 是否删除(boolean)]
+ *
+ *      代数(generation)用于区分压缩前后的打包Object，压缩后会写入新一代的打包Object。
+ *
+ * @author kon, created on 2026/10/19T10:15.
+ * @version 1.0.0-SNAPSHOT
+ */
+public class PackIndex {
+    /**
+     * 魔数：OPAK
+     */
+    private static final int MAGIC = 0x4F50414B;
+    /**
+     * 索引格式版本
+     */
+    private static final short VERSION = 1;
+    /**
+     * 代数
+     */
+    private final long generation;
+    /**
+     * 条目，按写入顺序排列
+     */
+    private final Map<String, PackEntry> entries = new LinkedHashMap<>();
+
+    public PackIndex(long generation) {
+        this.generation = generation;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 添加条目
+     * @param key       条目Key
+     * @param offset    偏移量
+     * @param length    字节长度
+     */
+    public void add(String key, long offset, int length) {
+        this.entries.put(key, new PackEntry(key, offset, length, false));
+    }
+
+    /**
+     * 获取有效条目
+     * @param key   条目Key
+     * @return  条目，不存在或已删除返回null
+     */
+    public PackEntry get(String key) {
+        PackEntry entry = this.entries.get(key);
+        if (entry == null || entry.isDeleted()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 标记删除
+     * @param key   条目Key
+     * @return  T/F
+     */
+    public boolean markDeleted(String key) {
+        PackEntry entry = get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.markDeleted();
+        return true;
+    }
+
+    /**
+     * 全部条目（包括已删除）
+     * @return  条目集合
+     */
+    public Collection<PackEntry> entries() {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    /**
+     * 有效条目数
+     * @return  条目数
+     */
+    public int liveCount() {
+        int count = 0;
+        for (PackEntry entry : this.entries.values()) {
+            if (!entry.isDeleted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 已删除字节占比
+     * @return  0~1
+     */
+    public double deletedRatio() {
+        long total = 0;
+        long deleted = 0;
+        for (PackEntry entry : this.entries.values()) {
+            total += entry.getLength();
+            if (entry.isDeleted()) {
+                deleted += entry.getLength();
+            }
+        }
+        if (total == 0) {
+            // 全部为空条目时，仅在全部删除的情况下视为需要压缩
+            return !this.entries.isEmpty() && liveCount() == 0 ? 1 : 0;
+        }
+        return deleted * 1.0 / total;
+    }
+
+    /**
+     * 按迭代顺序打包内容
+     * @param generation    代数
+     * @param contents      条目Key -> 内容
+     * @param out           打包数据输出
+     * @return  打包索引
+     * @throws IOException  IO异常
+     */
+    public static PackIndex pack(long generation, Map<String, byte[]> contents, OutputStream out) throws IOException {
+        PackIndex index = new PackIndex(generation);
+        long offset = 0;
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            byte[] content = entry.getValue();
+            index.add(entry.getKey(), offset, content.length);
+            out.write(content);
+            offset += content.length;
+        }
+        return index;
+    }
+
+    /**
+     * 压缩：只保留有效条目并重新计算偏移量
+     * @param generation    新代数
+     * @param data          当前打包数据
+     * @param out           新打包数据输出
+     * @return  新打包索引
+     * @throws IOException  IO异常
+     */
+    public PackIndex compact(long generation, byte[] data, OutputStream out) throws IOException {
+        PackIndex index = new PackIndex(generation);
+        long offset = 0;
+        for (PackEntry entry : this.entries.values()) {
+            if (!entry.isDeleted()) {
+                index.add(entry.getKey(), offset, entry.getLength());
+                out.write(data, (int) entry.getOffset(), entry.getLength());
+                offset += entry.getLength();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 序列化
+     * @return  字节数组
+     * @throws IOException  IO异常
+     */
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64 + this.entries.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(outputStream)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(this.generation);
+            out.writeInt(this.entries.size());
+            for (PackEntry entry : this.entries.values()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getLength());
+                out.writeBoolean(entry.isDeleted());
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 反序列化
+     * @param bytes 字节数组
+     * @return  打包索引
+     * @throws IOException  IO异常
+     */
+    public static PackIndex fromBytes(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("pack index magic is error");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("pack index version [" + version + "] is not supported");
+            }
+            PackIndex index = new PackIndex(in.readLong());
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                long offset = in.readLong();
+                int length = in.readInt();
+                boolean deleted = in.readBoolean();
+                index.entries.put(key, new PackEntry(key, offset, length, deleted));
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.kon.config;
+
+import org.junit.jupiter.api.Test;
+import org.kon.oss.OssTemplate;
+import org.kon.oss.OssTemplateRegistry;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Oss配置测试
+ *
+ *      build只创建客户端不发起请求，未配置warmUp时不访问网络。
+ *
+ * @author kon, created on 2026/10/20T16:00.
+ * @version 1.0.0-SNAPSHOT
+ */
+class OssConfigurationTest {
+
+    private static final String HANGZHOU = "https://oss-cn-hangzhou.aliyuncs.com";
+
+    private static final String SHANGHAI = "https://oss-cn-shanghai.aliyuncs.com";
+
+    private final OssConfiguration configuration = new OssConfiguration();
+
+    @Test
+    void discoversDefaultAndNamedClients() {
+        Map<String, Object> properties = defaults();
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        properties.put("oss.clients.beijing.endpoint", "https://oss-cn-beijing.aliyuncs.com");
+        properties.put("oss.clients.shanghai.maxConnections", 256);
+        OssTemplateRegistry registry = registry(properties);
+
+        assertEquals(new HashSet<>(Arrays.asList("default", "shanghai", "beijing")), registry.names());
+        assertEquals(HANGZHOU, registry.getDefault().getEndpoint());
+        assertEquals(SHANGHAI, registry.get("shanghai").getEndpoint());
+        assertSame(registry.getDefault(), this.configuration.getOssTemplate(registry));
+        registry.shutdown();
+    }
+
+    @Test
+    void namedClientsWithoutDefault() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("oss.accessKeyId", "accessKeyId");
+        properties.put("oss.accessKeySecret", "accessKeySecret");
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        OssTemplateRegistry registry = registry(properties);
+
+        assertEquals(SHANGHAI, this.configuration.getOssTemplate(registry).getEndpoint());
+        registry.shutdown();
+    }
+
+    @Test
+    void namedClientInheritsCredentialsPrivacyAndPool() {
+        Map<String, Object> properties = defaults();
+        properties.put("oss.isPrivate", false);
+        properties.put("oss.maxConnections", 64);
+        properties.put("oss.socketTimeout", 30000);
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        properties.put("oss.clients.private.endpoint", SHANGHAI);
+        properties.put("oss.clients.private.isPrivate", true);
+        properties.put("oss.clients.private.maxConnections", 8);
+        OssTemplateRegistry registry = registry(properties);
+
+        OssTemplate shanghai = registry.get("shanghai");
+        assertTrue(shanghai.checkConnected());
+        assertFalse(shanghai.isPrivate());
+        assertEquals(64, shanghai.getClientConfiguration().getMaxConnections());
+        assertEquals(30000, shanghai.getClientConfiguration().getSocketTimeout());
+
+        OssTemplate overridden = registry.get("private");
+        assertTrue(overridden.isPrivate());
+        assertEquals(8, overridden.getClientConfiguration().getMaxConnections());
+        assertEquals(30000, overridden.getClientConfiguration().getSocketTimeout());
+        registry.shutdown();
+    }
+
+    @Test
+    void bucketsAreNotInherited() {
+        Map<String, Object> properties = defaults();
+        properties.put("oss.buckets", "bucket-hz");
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        properties.put("oss.clients.shanghai.buckets", "bucket-sh-a, bucket-sh-b");
+        OssTemplateRegistry registry = registry(properties);
+
+        assertSame(registry.getDefault(), registry.forBucket("bucket-hz"));
+        assertSame(registry.get("shanghai"), registry.forBucket("bucket-sh-a"));
+        assertSame(registry.get("shanghai"), registry.forBucket("bucket-sh-b"));
+        assertSame(registry.getDefault(), registry.forBucket("unknown"));
+        registry.shutdown();
+    }
+
+    @Test
+    void duplicateBucketRouteIsRejected() {
+        Map<String, Object> properties = defaults();
+        properties.put("oss.buckets", "bucket");
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        properties.put("oss.clients.shanghai.buckets", "bucket");
+        assertThrows(IllegalArgumentException.class, () -> registry(properties));
+    }
+
+    @Test
+    void missingEndpointFails() {
+        OssTemplateRegistry registry = registry(new HashMap<>());
+        assertTrue(registry.names().isEmpty());
+        assertThrows(IllegalStateException.class, () -> this.configuration.getOssTemplate(registry));
+    }
+
+    @Test
+    void shutdownReleasesEveryClient() {
+        Map<String, Object> properties = defaults();
+        properties.put("oss.clients.shanghai.endpoint", SHANGHAI);
+        OssTemplateRegistry registry = registry(properties);
+
+        registry.shutdown();
+        assertFalse(registry.getDefault().checkConnected());
+        assertFalse(registry.get("shanghai").checkConnected());
+        // 重复关闭不报错
+        registry.shutdown();
+    }
+
+    private OssTemplateRegistry registry(Map<String, Object> properties) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        return this.configuration.ossTemplateRegistry(environment);
+    }
+
+    private static Map<String, Object> defaults() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("oss.endpoint", HANGZHOU);
+        properties.put("oss.accessKeyId", "accessKeyId");
+        properties.put("oss.accessKeySecret", "accessKeySecret");
+        return properties;
+    }
+}
@@ -0,0 +1,233 @@
+package org.kon.oss;
+
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 内存版OSS，测试使用
+ *
+ *      通过动态代理实现OSS接口，只支持OssTemplate与OssPackTemplate用到的方法。
+ *
+ * @author kon, created on 2026/10/20T11:00.
+ * @version 1.0.0-SNAPSHOT
+ */
+public class FakeOss implements InvocationHandler {
+
+    public static final String ENDPOINT = "https://oss-cn-hangzhou.aliyuncs.com";
+
+    private static final String CRC64_HEADER = "x-oss-hash-crc64ecma";
+
+    private static final String STORAGE_CLASS_HEADER = "x-oss-storage-class";
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private final Map<String, ObjectMetadata> metadata = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> gets = new ConcurrentHashMap<>();
+
+    private final OSS client;
+
+    private volatile RuntimeException headError;
+
+    private volatile Predicate<String> putFailure = key -> false;
+
+    private volatile Predicate<String> deleteFailure = key -> false;
+
+    private volatile boolean strictRange = true;
+
+    public FakeOss() {
+        this.client = (OSS) Proxy.newProxyInstance(OSS.class.getClassLoader(), new Class<?>[]{OSS.class}, this);
+    }
+
+    public OSS client() {
+        return this.client;
+    }
+
+    /**
+     * 使用当前内存OSS的模板
+     * @param isPrivate 是否私有
+     * @return  模板
+     */
+    public OssTemplate template(boolean isPrivate) {
+        return new OssTemplate(ENDPOINT, "accessKeyId", "accessKeySecret") {
+            @Override
+            public OSS getOssClient() {
+                return client;
+            }
+        }.setPrivate(isPrivate);
+    }
+
+    public void put(String bucketName, String key, byte[] content, ObjectMetadata objectMetadata) {
+        this.contents.put(bucketName + "/" + key, content);
+        this.metadata.put(bucketName + "/" + key, objectMetadata == null ? new ObjectMetadata() : objectMetadata);
+    }
+
+    public byte[] content(String bucketName, String key) {
+        return this.contents.get(bucketName + "/" + key);
+    }
+
+    public Set<String> keys(String bucketName) {
+        Set<String> keys = new TreeSet<>();
+        for (String key : this.contents.keySet()) {
+            if (key.startsWith(bucketName + "/")) {
+                keys.add(key.substring(bucketName.length() + 1));
+            }
+        }
+        return keys;
+    }
+
+    public int calls(String methodName) {
+        AtomicInteger count = this.calls.get(methodName);
+        return count == null ? 0 : count.get();
+    }
+
+    public int gets(String bucketName, String key) {
+        AtomicInteger count = this.gets.get(bucketName + "/" + key);
+        return count == null ? 0 : count.get();
+    }
+
+    public void failHead(RuntimeException headError) {
+        this.headError = headError;
+    }
+
+    public void failPut(Predicate<String> putFailure) {
+        this.putFailure = putFailure;
+    }
+
+    public void failDelete(Predicate<String> deleteFailure) {
+        this.deleteFailure = deleteFailure;
+    }
+
+    /**
+     * 模拟未携带x-oss-range-behavior: standard时的行为：非法范围返回整个Object
+     * @param strictRange   是否遵循严格范围请求头
+     */
+    public void setStrictRange(boolean strictRange) {
+        this.strictRange = strictRange;
+    }
+
+    public static OSSException noSuchKey() {
+        return new OSSException("The specified key does not exist.", OSSErrorCode.NO_SUCH_KEY, "requestId", "hostId",
+                null, null, null);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        this.calls.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+        switch (name) {
+            case "putObject":
+                return putObject((PutObjectRequest) args[0]);
+            case "getObject":
+                return getObject((GetObjectRequest) args[0]);
+            case "getObjectMetadata":
+                return getObjectMetadata((String) args[0], (String) args[1]);
+            case "deleteObject":
+                String key = args[0] + "/" + args[1];
+                if (this.deleteFailure.test((String) args[1])) {
+                    throw new OSSException("delete failed");
+                }
+                this.contents.remove(key);
+                this.metadata.remove(key);
+                return null;
+            case "generatePresignedUrl":
+                Date expiration = (Date) args[2];
+                return new URL("https://" + args[0] + ".fake/" + args[1] + "?Expires=" + expiration.getTime() / 1000);
+            case "doesBucketExist":
+                return true;
+            case "shutdown":
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "FakeOss";
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+
+    private PutObjectResult putObject(PutObjectRequest request) throws Exception {
+        if (this.putFailure.test(request.getKey())) {
+            throw new OSSException("put failed");
+        }
+        byte[] content;
+        try (InputStream inputStream = request.getFile() != null
+                ? new FileInputStream(request.getFile()) : request.getInputStream()) {
+            content = StreamUtils.copyToByteArray(inputStream);
+        }
+        put(request.getBucketName(), request.getKey(), content, request.getMetadata());
+        return new PutObjectResult();
+    }
+
+    private OSSObject getObject(GetObjectRequest request) {
+        String key = request.getBucketName() + "/" + request.getKey();
+        this.gets.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        byte[] content = this.contents.get(key);
+        if (content == null) {
+            throw noSuchKey();
+        }
+        long[] range = request.getRange();
+        if (range != null) {
+            boolean isValid = range[0] >= 0 && range[0] <= range[1] && range[1] < content.length;
+            if (isValid) {
+                content = Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1);
+            } else if (this.strictRange && "standard".equals(request.getHeaders().get("x-oss-range-behavior"))) {
+                throw new OSSException("The requested range is not satisfiable", "InvalidRange", "requestId",
+                        "hostId", null, null, null);
+            }
+        }
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(request.getBucketName());
+        ossObject.setKey(request.getKey());
+        ossObject.setObjectContent(new ByteArrayInputStream(content));
+        return ossObject;
+    }
+
+    private ObjectMetadata getObjectMetadata(String bucketName, String key) {
+        if (this.headError != null) {
+            throw this.headError;
+        }
+        byte[] content = this.contents.get(bucketName + "/" + key);
+        if (content == null) {
+            throw noSuchKey();
+        }
+        ObjectMetadata stored = this.metadata.get(bucketName + "/" + key);
+        ObjectMetadata head = new ObjectMetadata();
+        head.setUserMetadata(new HashMap<>(stored.getUserMetadata()));
+        CRC64 crc64 = new CRC64();
+        crc64.update(content, 0, content.length);
+        head.setHeader(CRC64_HEADER, Long.toUnsignedString(crc64.getValue()));
+        Object storageClass = stored.getRawMetadata().get(STORAGE_CLASS_HEADER);
+        head.setHeader(STORAGE_CLASS_HEADER, storageClass == null ? "Standard" : storageClass.toString());
+        return head;
+    }
+}
@@ -0,0 +1,178 @@
+package org.kon.oss;
+
+import com.aliyun.oss.ClientBuilderConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Oss模板测试
+ *
+ * @author kon, created on 2026/10/20T14:00.
+ * @version 1.0.0-SNAPSHOT
+ */
+class OssTemplateTest {
+
+    private static final String BUCKET = "bucket";
+
+    private static final byte[] CONTENT = "content".getBytes(StandardCharsets.UTF_8);
+
+    private FakeOss fakeOss;
+
+    private OssTemplate ossTemplate;
+
+    @BeforeEach
+    void setUp() {
+        this.fakeOss = new FakeOss();
+        this.ossTemplate = this.fakeOss.template(true).setDedup(true);
+    }
+
+    @Test
+    void dedupSkipsUnchangedContent() {
+        assertNotNull(this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT));
+        assertNotNull(this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT));
+        assertEquals(1, this.fakeOss.calls("putObject"));
+        assertEquals(2, this.fakeOss.calls("getObjectMetadata"));
+    }
+
+    @Test
+    void dedupUploadsChangedContent() {
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", "changed".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, this.fakeOss.calls("putObject"));
+        assertEquals("changed", new String(this.fakeOss.content(BUCKET, "a.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void dedupUploadsWhenStorageClassDiffers() {
+        ObjectMetadata metadata = this.ossTemplate.getMetadata();
+        metadata.setHeader("x-oss-storage-class", "IA");
+        this.fakeOss.put(BUCKET, "a.txt", CONTENT, metadata);
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        assertEquals(1, this.fakeOss.calls("putObject"));
+    }
+
+    @Test
+    void dedupUploadsWhenAclDiffers() {
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        OssTemplate publicTemplate = this.fakeOss.template(false).setDedup(true);
+        String url = publicTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        assertEquals(2, this.fakeOss.calls("putObject"));
+        assertEquals(FakeOss.ENDPOINT.replace("//", "//" + BUCKET + ".") + "/a.txt", url);
+    }
+
+    @Test
+    void dedupUploadsWhenAclMetadataIsMissing() {
+        this.fakeOss.put(BUCKET, "a.txt", CONTENT, null);
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        assertEquals(1, this.fakeOss.calls("putObject"));
+    }
+
+    @Test
+    void dedupDoesNotHashMissingObject() {
+        AtomicInteger hashed = new AtomicInteger();
+        assertFalse(this.ossTemplate.isSameContent(BUCKET, "a.txt", () -> {
+            hashed.incrementAndGet();
+            return 0L;
+        }));
+        assertEquals(0, hashed.get());
+        assertNotNull(this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT));
+        assertEquals(1, this.fakeOss.calls("putObject"));
+    }
+
+    @Test
+    void dedupUploadsWhenHeadFails() {
+        this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT);
+        this.fakeOss.failHead(new ClientException("connect timeout"));
+        assertNotNull(this.ossTemplate.pushBytes(BUCKET, "a.txt", CONTENT));
+        assertEquals(2, this.fakeOss.calls("putObject"));
+    }
+
+    @Test
+    void dedupSkipsUnchangedFile(@TempDir Path dir) throws Exception {
+        File file = Files.write(dir.resolve("a.txt"), CONTENT).toFile();
+        assertNotNull(this.ossTemplate.pushFile(BUCKET, "a.txt", file));
+        assertNotNull(this.ossTemplate.pushFile(BUCKET, "a.txt", file.getPath()));
+        assertEquals(1, this.fakeOss.calls("putObject"));
+    }
+
+    @Test
+    void withoutDedupAlwaysUploads() {
+        OssTemplate template = this.fakeOss.template(true);
+        template.pushBytes(BUCKET, "a.txt", CONTENT);
+        template.pushBytes(BUCKET, "a.txt", CONTENT);
+        assertEquals(2, this.fakeOss.calls("putObject"));
+        assertEquals(0, this.fakeOss.calls("getObjectMetadata"));
+    }
+
+    @Test
+    void publicUrl() {
+        OssTemplate template = new OssTemplate("https://oss-cn-hangzhou.aliyuncs.com", "accessKeyId", "accessKeySecret")
+                .setPrivate(false);
+        Map<String, String> urls = template.generateUrls(BUCKET, Arrays.asList("a.txt", "dir/b.png"));
+        assertEquals("https://bucket.oss-cn-hangzhou.aliyuncs.com/a.txt", urls.get("a.txt"));
+        assertEquals("https://bucket.oss-cn-hangzhou.aliyuncs.com/dir/b.png", urls.get("dir/b.png"));
+        assertEquals("http://bucket.oss-cn-shanghai.aliyuncs.com/a.txt",
+                new OssTemplate("http://oss-cn-shanghai.aliyuncs.com", "accessKeyId", "accessKeySecret")
+                        .setPrivate(false).generateUrls(BUCKET, Arrays.asList("a.txt")).get("a.txt"));
+    }
+
+    @Test
+    void publicUrlWithInvalidEndpoint() {
+        OssTemplate template = new OssTemplate("oss-cn-hangzhou.aliyuncs.com", "accessKeyId", "accessKeySecret")
+                .setPrivate(false);
+        assertNull(template.generateUrls(BUCKET, Arrays.asList("a.txt")));
+    }
+
+    @Test
+    void generateUrlsKeepsOrderAcrossParallelThreshold() {
+        for (int size : new int[]{10, 255, 256, 5000}) {
+            List<String> names = new ArrayList<>(size);
+            for (int i = size; i > 0; i--) {
+                names.add("dir/" + i + ".png");
+            }
+            Map<String, String> urls = this.ossTemplate.generateUrls(BUCKET, names);
+            assertEquals(names, new ArrayList<>(urls.keySet()));
+            for (String name : names) {
+                assertTrue(urls.get(name).startsWith("https://" + BUCKET + ".fake/" + name + "?Expires="));
+            }
+        }
+    }
+
+    @Test
+    void generateUrlsIgnoresNullAndDuplicateNames() {
+        Map<String, String> urls = this.ossTemplate.generateUrls(BUCKET, Arrays.asList("b", null, "a", "b"));
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(urls.keySet()));
+        assertEquals(2, this.fakeOss.calls("generatePresignedUrl"));
+    }
+
+    @Test
+    void warmUpSpreadsConnectionsAcrossBucketsWithinMaxConnections() {
+        ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+        configuration.setMaxConnections(5);
+        this.ossTemplate.setClientConfiguration(configuration);
+
+        this.ossTemplate.warmUp(Arrays.asList("a", "b", "c"), 1, 1000);
+        assertEquals(3, this.fakeOss.calls("doesBucketExist"));
+        this.ossTemplate.warmUp(Arrays.asList("a", "b", "c"), 4, 1000);
+        assertEquals(8, this.fakeOss.calls("doesBucketExist"));
+        this.ossTemplate.warmUp(Collections.emptyList(), 4, 1000);
+        this.ossTemplate.warmUp("a", 0);
+        assertEquals(8, this.fakeOss.calls("doesBucketExist"));
+    }
+}
@@ -0,0 +1,214 @@
+package org.kon.oss.pack;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kon.oss.FakeOss;
+import org.kon.oss.OssTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 打包模板测试
+ *
+ * @author kon, created on 2026/10/20T11:30.
+ * @version 1.0.0-SNAPSHOT
+ */
+class OssPackTemplateTest {
+
+    private static final String BUCKET = "bucket";
+
+    private FakeOss fakeOss;
+
+    private OssTemplate ossTemplate;
+
+    @BeforeEach
+    void setUp() {
+        this.fakeOss = new FakeOss();
+        this.ossTemplate = this.fakeOss.template(true);
+    }
+
+    @Test
+    void pushAndGetEntry() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        assertTrue(packTemplate.pushPack(BUCKET, "p", contents("a", "aaa", "empty", "", "b", "bbbbb")));
+
+        assertEquals("aaa", string(packTemplate.getEntry(BUCKET, "p", "a")));
+        assertEquals("", string(packTemplate.getEntry(BUCKET, "p", "empty")));
+        assertEquals("bbbbb", string(packTemplate.getEntry(BUCKET, "p", "b")));
+        assertNull(packTemplate.getEntry(BUCKET, "p", "missing"));
+        assertNull(packTemplate.getEntry(BUCKET, "missing", "a"));
+        assertEquals(1, packObjects().size());
+    }
+
+    @Test
+    void staleIndexIsRefreshedAndRetried() {
+        OssPackTemplate writer = new OssPackTemplate(this.ossTemplate).setCompactRatio(0.1);
+        OssPackTemplate reader = new OssPackTemplate(this.ossTemplate);
+        writer.pushPack(BUCKET, "p", contents("a", "aaaa", "b", "bbbb"));
+        assertEquals("bbbb", string(reader.getEntry(BUCKET, "p", "b")));
+
+        // 其他进程删除条目并压缩，reader缓存的索引指向已删除的旧一代打包
+        assertTrue(writer.deleteEntry(BUCKET, "p", "a"));
+        assertEquals(1, packObjects().size());
+
+        assertEquals("bbbb", string(reader.getEntry(BUCKET, "p", "b")));
+        assertNull(reader.getEntry(BUCKET, "p", "a"));
+    }
+
+    @Test
+    void deleteEntryCompactsAtThreshold() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate).setCompactRatio(0.5);
+        packTemplate.pushPack(BUCKET, "p", contents("a", "0123456789", "b", "0123456789", "c", "01234567890123456789"));
+        String firstPack = packObjects().iterator().next();
+
+        assertTrue(packTemplate.deleteEntry(BUCKET, "p", "a"));
+        assertEquals(firstPack, packObjects().iterator().next());
+        assertEquals(40, this.fakeOss.content(BUCKET, firstPack).length);
+
+        assertTrue(packTemplate.deleteEntry(BUCKET, "p", "b"));
+        Set<String> packs = packObjects();
+        assertEquals(1, packs.size());
+        String secondPack = packs.iterator().next();
+        assertNotEquals(firstPack, secondPack);
+        assertEquals(20, this.fakeOss.content(BUCKET, secondPack).length);
+        assertEquals("01234567890123456789", string(new OssPackTemplate(this.ossTemplate).getEntry(BUCKET, "p", "c")));
+        assertFalse(packTemplate.deleteEntry(BUCKET, "p", "a"));
+    }
+
+    @Test
+    void deletingLastEntryDeletesPack() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        packTemplate.pushPack(BUCKET, "p", contents("a", "aaa"));
+        assertTrue(packTemplate.deleteEntry(BUCKET, "p", "a"));
+        assertTrue(this.fakeOss.keys(BUCKET).isEmpty());
+        assertNull(packTemplate.getEntry(BUCKET, "p", "a"));
+    }
+
+    @Test
+    void cachedIndexExpires() {
+        new OssPackTemplate(this.ossTemplate).pushPack(BUCKET, "p", contents("a", "aaa"));
+        int base = this.fakeOss.gets(BUCKET, "p.idx");
+
+        OssPackTemplate cached = new OssPackTemplate(this.ossTemplate);
+        cached.getEntry(BUCKET, "p", "a");
+        cached.getEntry(BUCKET, "p", "a");
+        assertEquals(base + 1, this.fakeOss.gets(BUCKET, "p.idx"));
+
+        OssPackTemplate expired = new OssPackTemplate(this.ossTemplate).setIndexExpirationSecond(0);
+        expired.getEntry(BUCKET, "p", "a");
+        expired.getEntry(BUCKET, "p", "a");
+        assertEquals(base + 3, this.fakeOss.gets(BUCKET, "p.idx"));
+    }
+
+    @Test
+    void cachedIndexIsEvictedByLru() {
+        OssPackTemplate writer = new OssPackTemplate(this.ossTemplate);
+        writer.pushPack(BUCKET, "p1", contents("a", "aaa"));
+        writer.pushPack(BUCKET, "p2", contents("b", "bbb"));
+        int base1 = this.fakeOss.gets(BUCKET, "p1.idx");
+        int base2 = this.fakeOss.gets(BUCKET, "p2.idx");
+
+        OssPackTemplate reader = new OssPackTemplate(this.ossTemplate).setMaxCachedIndexes(1);
+        reader.getEntry(BUCKET, "p1", "a");
+        reader.getEntry(BUCKET, "p2", "b");
+        reader.getEntry(BUCKET, "p1", "a");
+        assertEquals(base1 + 2, this.fakeOss.gets(BUCKET, "p1.idx"));
+        assertEquals(base2 + 1, this.fakeOss.gets(BUCKET, "p2.idx"));
+
+        OssPackTemplate larger = new OssPackTemplate(this.ossTemplate).setMaxCachedIndexes(2);
+        larger.getEntry(BUCKET, "p1", "a");
+        larger.getEntry(BUCKET, "p2", "b");
+        larger.getEntry(BUCKET, "p1", "a");
+        assertEquals(base1 + 3, this.fakeOss.gets(BUCKET, "p1.idx"));
+    }
+
+    @Test
+    void invalidRangeDoesNotReturnWholePack() throws Exception {
+        long generation = 1L;
+        PackIndex index = new PackIndex(generation);
+        index.add("a", 0, 4);
+        index.add("broken", 100, 5);
+        this.fakeOss.put(BUCKET, "p.idx", index.toBytes(), null);
+        this.fakeOss.put(BUCKET, "p.1.pack", "aaaa".getBytes(StandardCharsets.UTF_8), null);
+
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        assertEquals("aaaa", string(packTemplate.getEntry(BUCKET, "p", "a")));
+        assertNull(packTemplate.getEntry(BUCKET, "p", "broken"));
+
+        // 服务端忽略Range返回整个Object时，按长度校验失败
+        this.fakeOss.setStrictRange(false);
+        assertNull(packTemplate.getEntry(BUCKET, "p", "broken"));
+    }
+
+    @Test
+    void failedIndexWriteRemovesNewPack() {
+        this.fakeOss.failPut(key -> key.endsWith(".idx"));
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        assertFalse(packTemplate.pushPack(BUCKET, "p", contents("a", "aaa")));
+        assertTrue(this.fakeOss.keys(BUCKET).isEmpty());
+    }
+
+    @Test
+    void failedOldPackDeleteKeepsCompactionResult() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        packTemplate.pushPack(BUCKET, "p", contents("a", "aaa", "b", "bbb"));
+        this.fakeOss.failDelete(key -> key.endsWith(".pack"));
+        packTemplate.setCompactRatio(1);
+        packTemplate.deleteEntry(BUCKET, "p", "a");
+
+        assertTrue(packTemplate.compact(BUCKET, "p"));
+        assertEquals(2, packObjects().size());
+        assertEquals("bbb", string(new OssPackTemplate(this.ossTemplate).getEntry(BUCKET, "p", "b")));
+    }
+
+    @Test
+    void writerFlushesByEntryCount() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        OssPackWriter writer = new OssPackWriter(packTemplate, BUCKET, "thumbs/pack").setMaxPackEntries(2);
+
+        String first = writer.add("a", "aaa".getBytes(StandardCharsets.UTF_8));
+        assertEquals(first, writer.add("b", "bbb".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("bbb", string(packTemplate.getEntry(BUCKET, first, "b")));
+
+        String second = writer.add("c", "ccc".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(first, second);
+        assertNull(packTemplate.getEntry(BUCKET, second, "c"));
+        writer.close();
+        assertEquals("ccc", string(packTemplate.getEntry(BUCKET, second, "c")));
+    }
+
+    @Test
+    void writerKeepsBufferWhenFlushFails() {
+        OssPackTemplate packTemplate = new OssPackTemplate(this.ossTemplate);
+        OssPackWriter writer = new OssPackWriter(packTemplate, BUCKET, "pack").setMaxPackBytes(1024);
+        String packName = writer.add("a", "aaa".getBytes(StandardCharsets.UTF_8));
+
+        this.fakeOss.failPut(key -> true);
+        assertFalse(writer.flush());
+        this.fakeOss.failPut(key -> false);
+        assertTrue(writer.flush());
+        assertEquals("aaa", string(packTemplate.getEntry(BUCKET, packName, "a")));
+    }
+
+    private Set<String> packObjects() {
+        return this.fakeOss.keys(BUCKET).stream().filter(key -> key.endsWith(".pack")).collect(Collectors.toSet());
+    }
+
+    private static Map<String, byte[]> contents(String... keyValues) {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            contents.put(keyValues[i], keyValues[i + 1].getBytes(StandardCharsets.UTF_8));
+        }
+        return contents;
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
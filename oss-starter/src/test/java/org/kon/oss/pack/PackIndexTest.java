@@ -0,0 +1,135 @@
+package org.kon.oss.pack;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 打包索引测试
+ *
+ * @author kon, created on 2026/10/19T16:30.
+ * @version 1.0.0-SNAPSHOT
+ */
+class PackIndexTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        PackIndex index = new PackIndex(42L);
+        index.add("a.json", 0, 3);
+        index.add("图片/b.png", 3, 0);
+        index.add("c.txt", 3, 5);
+        index.markDeleted("c.txt");
+
+        PackIndex copy = PackIndex.fromBytes(index.toBytes());
+
+        assertEquals(42L, copy.getGeneration());
+        assertEquals(3, copy.entries().size());
+        assertEquals(2, copy.liveCount());
+        assertEquals(0, copy.get("a.json").getOffset());
+        assertEquals(3, copy.get("a.json").getLength());
+        assertEquals(3, copy.get("图片/b.png").getOffset());
+        assertEquals(0, copy.get("图片/b.png").getLength());
+        assertNull(copy.get("c.txt"));
+        assertTrue(copy.entries().stream().anyMatch(entry -> "c.txt".equals(entry.getKey()) && entry.isDeleted()));
+    }
+
+    @Test
+    void badMagic() {
+        byte[] bytes = new byte[]{0, 0, 0, 0, 0, 1};
+        assertThrows(IOException.class, () -> PackIndex.fromBytes(bytes));
+    }
+
+    @Test
+    void badVersion() throws IOException {
+        byte[] bytes = new PackIndex(1L).toBytes();
+        // 魔数后的两个字节为版本
+        bytes[5] = 9;
+        IOException e = assertThrows(IOException.class, () -> PackIndex.fromBytes(bytes));
+        assertTrue(e.getMessage().contains("9"));
+    }
+
+    @Test
+    void truncated() throws IOException {
+        PackIndex index = new PackIndex(1L);
+        index.add("a", 0, 1);
+        byte[] bytes = index.toBytes();
+        assertThrows(IOException.class, () -> PackIndex.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test
+    void deletedRatio() {
+        assertEquals(0, new PackIndex(1L).deletedRatio());
+
+        PackIndex index = new PackIndex(1L);
+        index.add("a", 0, 10);
+        index.add("b", 10, 30);
+        assertEquals(0, index.deletedRatio());
+        index.markDeleted("a");
+        assertEquals(0.25, index.deletedRatio(), 1e-9);
+        index.markDeleted("b");
+        assertEquals(1, index.deletedRatio(), 1e-9);
+        assertFalse(index.markDeleted("b"));
+    }
+
+    @Test
+    void deletedRatioWithZeroLengthEntries() {
+        PackIndex index = new PackIndex(1L);
+        index.add("a", 0, 0);
+        index.add("b", 0, 0);
+        assertEquals(0, index.deletedRatio());
+        index.markDeleted("a");
+        assertEquals(0, index.deletedRatio());
+        index.markDeleted("b");
+        assertEquals(1, index.deletedRatio());
+    }
+
+    @Test
+    void compactRecomputesOffsets() throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("a", bytes("aaa"));
+        contents.put("b", bytes("bbbbb"));
+        contents.put("empty", new byte[0]);
+        contents.put("c", bytes("cc"));
+        contents.put("d", bytes("dddd"));
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        PackIndex index = PackIndex.pack(1L, contents, packed);
+        byte[] data = packed.toByteArray();
+        assertEquals(14, data.length);
+        assertEquals(8, index.get("c").getOffset());
+
+        index.markDeleted("a");
+        index.markDeleted("c");
+        ByteArrayOutputStream compacted = new ByteArrayOutputStream();
+        PackIndex newIndex = index.compact(2L, data, compacted);
+        byte[] newData = compacted.toByteArray();
+
+        assertEquals(2L, newIndex.getGeneration());
+        assertEquals(3, newIndex.entries().size());
+        assertEquals(0, newIndex.deletedRatio());
+        assertEquals(9, newData.length);
+        assertEquals(0, newIndex.get("b").getOffset());
+        assertEquals(5, newIndex.get("empty").getOffset());
+        assertEquals(5, newIndex.get("d").getOffset());
+        assertNull(newIndex.get("a"));
+        assertNull(newIndex.get("c"));
+        for (String key : new String[]{"b", "empty", "d"}) {
+            assertArrayEquals(contents.get(key), slice(newData, newIndex.get(key)));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] slice(byte[] data, PackEntry entry) {
+        int from = (int) entry.getOffset();
+        return Arrays.copyOfRange(data, from, from + entry.getLength());
+    }
+}